@@ -0,0 +1,58 @@
+package hu.snowylol.networkjs;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Works like the browser AbortController: pass {@code controller.signal} in the
+ * fetch options and call {@code controller.abort()} to cancel the request.
+ */
+public class AbortController {
+    private final AbortSignal signal = new AbortSignal();
+
+    public AbortSignal getSignal() { return signal; }
+
+    public void abort() {
+        abort("Aborted");
+    }
+
+    public void abort(String reason) {
+        signal.abort(reason);
+    }
+
+    public static class AbortSignal {
+        private volatile boolean aborted;
+        private volatile String reason;
+        private final Set<Runnable> listeners = ConcurrentHashMap.newKeySet();
+
+        public boolean isAborted() { return aborted; }
+        public String getReason() { return reason; }
+
+        void addListener(Runnable listener) {
+            listeners.add(listener);
+            // abort() may have raced with us, make sure the listener still fires
+            if (aborted && listeners.remove(listener)) {
+                listener.run();
+            }
+        }
+
+        void removeListener(Runnable listener) {
+            listeners.remove(listener);
+        }
+
+        private void abort(String reason) {
+            if (aborted) return;
+            this.reason = reason;
+            this.aborted = true;
+            for (Runnable listener : listeners) {
+                if (listeners.remove(listener)) {
+                    try {
+                        listener.run();
+                    } catch (Exception e) {
+                        NetworkJS.LOGGER.error("Error in abort listener: " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package hu.snowylol.networkjs;
+
+import dev.latvian.mods.rhino.Context;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.JDABuilder;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.minecraft.network.chat.Component;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerPlayer;
+import net.neoforged.neoforge.event.ServerChatEvent;
+import net.neoforged.neoforge.event.entity.living.LivingDeathEvent;
+import net.neoforged.neoforge.event.entity.player.PlayerEvent;
+import net.neoforged.neoforge.server.ServerLifecycleHooks;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiPredicate;
+
+/**
+ * Config driven Minecraft <-> Discord chat relay.
+ * Game events and the JDA listener feed it directly, scripts are only involved if they register a filter.
+ */
+public class ChatBridge {
+    private static final int DISCORD_MESSAGE_LIMIT = 2000;
+    private static final int MAX_LINES_PER_TICK = 20;
+
+    private static final Queue<String> toDiscord = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger toDiscordSize = new AtomicInteger();
+    private static final Queue<String[]> toMinecraft = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger toMinecraftSize = new AtomicInteger();
+
+    private static final List<BiPredicate<String, String>> discordFilters = new CopyOnWriteArrayList<>();
+    private static final List<BiPredicate<String, String>> minecraftFilters = new CopyOnWriteArrayList<>();
+
+    private static volatile JDA jda;
+    private static volatile String channelId;
+    private static volatile int maxQueue;
+    private static ScheduledFuture<?> flushTask;
+
+    private static Template chatFormat;
+    private static Template joinFormat;
+    private static Template leaveFormat;
+    private static Template deathFormat;
+    private static Template discordFormat;
+
+    static synchronized void start() {
+        if (jda != null || !NetworkJSConfig.BRIDGE_ENABLED.get()) return;
+
+        String token = NetworkJSConfig.BRIDGE_TOKEN.get();
+        channelId = NetworkJSConfig.BRIDGE_CHANNEL_ID.get();
+        if (token.isEmpty() || channelId.isEmpty()) {
+            NetworkJS.LOGGER.warn("Chat bridge is enabled but token or channelId is missing in config/networkjs-common.toml");
+            return;
+        }
+
+        chatFormat = Template.compile(NetworkJSConfig.BRIDGE_CHAT_FORMAT.get(), "player", "message");
+        joinFormat = Template.compile(NetworkJSConfig.BRIDGE_JOIN_FORMAT.get(), "player");
+        leaveFormat = Template.compile(NetworkJSConfig.BRIDGE_LEAVE_FORMAT.get(), "player");
+        deathFormat = Template.compile(NetworkJSConfig.BRIDGE_DEATH_FORMAT.get(), "player", "message");
+        // color codes are only translated in the template, never in the relayed text
+        discordFormat = Template.compile(ServerBinding.translateColorCodes(NetworkJSConfig.BRIDGE_DISCORD_FORMAT.get()), "author", "message");
+        maxQueue = NetworkJSConfig.BRIDGE_MAX_QUEUE.get();
+
+        try {
+            // No awaitReady, the server shouldn't wait for Discord - lines queue up until the channel is visible
+            jda = JDABuilder.createDefault(token)
+                    .enableIntents(GatewayIntent.GUILD_MESSAGES, GatewayIntent.MESSAGE_CONTENT)
+                    .addEventListeners(new DiscordListener())
+                    .build();
+        } catch (Exception e) {
+            NetworkJS.LOGGER.error("Failed to start Discord chat bridge: " + e.getMessage());
+            return;
+        }
+
+        long interval = NetworkJSConfig.BRIDGE_BATCH_INTERVAL.get();
+        flushTask = NetworkJS.getScheduler().scheduleWithFixedDelay(ChatBridge::flushToDiscord, interval, interval, TimeUnit.MILLISECONDS);
+        NetworkJS.LOGGER.info("Discord chat bridge started for channel {}", channelId);
+    }
+
+    static synchronized void stop() {
+        JDA current = jda;
+        if (current == null) return;
+        flushTask.cancel(false);
+        flushToDiscord();
+        jda = null;
+        // shutdown() still lets the final batch go out
+        current.shutdown();
+        toDiscord.clear();
+        toDiscordSize.set(0);
+        toMinecraft.clear();
+        toMinecraftSize.set(0);
+        NetworkJS.LOGGER.info("Discord chat bridge stopped");
+    }
+
+    public static boolean isRunning() {
+        return jda != null;
+    }
+
+    /**
+     * Optional script hook, return false to keep a Minecraft chat line out of Discord.
+     * Called with (player, message) on the server thread.
+     */
+    public static void filterToDiscord(Context cx, BiPredicate<String, String> filter) {
+        addFilter(cx, discordFilters, filter);
+    }
+
+    /**
+     * Optional script hook, return false to keep a Discord message out of Minecraft chat.
+     * Called with (author, message) on the server thread.
+     */
+    public static void filterToMinecraft(Context cx, BiPredicate<String, String> filter) {
+        addFilter(cx, minecraftFilters, filter);
+    }
+
+    private static void addFilter(Context cx, List<BiPredicate<String, String>> filters, BiPredicate<String, String> filter) {
+        filters.add(filter);
+        // filters are script code, drop them when the scripts reload
+        NetworkJSLifecycle.register(NetworkJSLifecycle.ownerOf(cx), () -> filters.remove(filter));
+    }
+
+    private static boolean passes(List<BiPredicate<String, String>> filters, String name, String message) {
+        for (BiPredicate<String, String> filter : filters) {
+            try {
+                if (!filter.test(name, message)) return false;
+            } catch (Exception e) {
+                NetworkJS.LOGGER.error("Error in chat bridge filter: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    static void onChat(ServerChatEvent event) {
+        if (jda == null) return;
+        String player = event.getUsername();
+        String message = event.getRawText();
+        if (!passes(discordFilters, player, message)) return;
+        queueToDiscord(chatFormat.render(player, message));
+    }
+
+    static void onPlayerJoin(PlayerEvent.PlayerLoggedInEvent event) {
+        if (jda == null || joinFormat.isEmpty()) return;
+        queueToDiscord(joinFormat.render(event.getEntity().getGameProfile().getName()));
+    }
+
+    static void onPlayerLeave(PlayerEvent.PlayerLoggedOutEvent event) {
+        if (jda == null || leaveFormat.isEmpty()) return;
+        queueToDiscord(leaveFormat.render(event.getEntity().getGameProfile().getName()));
+    }
+
+    static void onDeath(LivingDeathEvent event) {
+        if (jda == null || deathFormat.isEmpty() || !(event.getEntity() instanceof ServerPlayer player)) return;
+        String deathMessage = player.getCombatTracker().getDeathMessage().getString();
+        queueToDiscord(deathFormat.render(player.getGameProfile().getName(), deathMessage));
+    }
+
+    private static void queueToDiscord(String line) {
+        toDiscord.offer(line);
+        if (toDiscordSize.incrementAndGet() > maxQueue && toDiscord.poll() != null) {
+            toDiscordSize.decrementAndGet();
+        }
+    }
+
+    /**
+     * Sends everything collected since the last flush as few Discord messages as possible
+     */
+    private static void flushToDiscord() {
+        JDA current = jda;
+        if (current == null || toDiscord.isEmpty()) return;
+        TextChannel channel = current.getTextChannelById(channelId);
+        if (channel == null) return; // not ready yet, keep buffering
+
+        try {
+            StringBuilder batch = new StringBuilder();
+            String line;
+            while ((line = toDiscord.poll()) != null) {
+                toDiscordSize.decrementAndGet();
+                if (line.length() > DISCORD_MESSAGE_LIMIT) {
+                    line = line.substring(0, DISCORD_MESSAGE_LIMIT);
+                }
+                if (batch.length() + line.length() + 1 > DISCORD_MESSAGE_LIMIT) {
+                    send(channel, batch.toString());
+                    batch.setLength(0);
+                }
+                if (batch.length() > 0) batch.append('\n');
+                batch.append(line);
+            }
+            if (batch.length() > 0) {
+                send(channel, batch.toString());
+            }
+        } catch (Exception e) {
+            NetworkJS.LOGGER.error("Failed to relay chat to Discord: " + e.getMessage());
+        }
+    }
+
+    private static void send(TextChannel channel, String text) {
+        // Relayed text is never allowed to ping anyone. Not a static constant: the per-tick hook loads
+        // this class on every server and a constant would pull JDA in with it even with the bridge disabled
+        channel.sendMessage(text).setAllowedMentions(EnumSet.noneOf(Message.MentionType.class)).queue(null,
+                error -> NetworkJS.LOGGER.warn("Discord rejected relayed chat: " + error.getMessage()));
+    }
+
+    /**
+     * Called every server tick to broadcast a batch of Discord messages
+     */
+    static void tick() {
+        if (toMinecraft.isEmpty()) return;
+        MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+        if (server == null) return;
+
+        List<String> lines = new ArrayList<>();
+        String[] entry;
+        while (lines.size() < MAX_LINES_PER_TICK && (entry = toMinecraft.poll()) != null) {
+            toMinecraftSize.decrementAndGet();
+            if (passes(minecraftFilters, entry[0], entry[1])) {
+                lines.add(discordFormat.render(entry[0], entry[1]));
+            }
+        }
+        for (String line : lines) {
+            server.getPlayerList().broadcastSystemMessage(Component.literal(line), false);
+        }
+    }
+
+    private static class DiscordListener extends ListenerAdapter {
+        @Override
+        public void onMessageReceived(MessageReceivedEvent event) {
+            if (event.getAuthor().isBot() || !event.getChannel().getId().equals(channelId)) return;
+
+            // strip section signs so Discord users can't inject formatting codes, nicknames included
+            String author = (event.getMember() != null ? event.getMember().getEffectiveName() : event.getAuthor().getEffectiveName()).replace("\u00A7", "");
+            String content = event.getMessage().getContentDisplay().replace("\u00A7", "");
+            toMinecraft.offer(new String[] { author, content });
+            if (toMinecraftSize.incrementAndGet() > maxQueue && toMinecraft.poll() != null) {
+                toMinecraftSize.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Format string with {placeholders}, split once up front so rendering is plain appends
+     */
+    static class Template {
+        private final String[] literals;
+        private final int[] slots;
+
+        private Template(String[] literals, int[] slots) {
+            this.literals = literals;
+            this.slots = slots;
+        }
+
+        static Template compile(String format, String... placeholders) {
+            List<String> literals = new ArrayList<>();
+            List<Integer> slots = new ArrayList<>();
+            StringBuilder literal = new StringBuilder();
+            int i = 0;
+            while (i < format.length()) {
+                int matched = -1;
+                if (format.charAt(i) == '{') {
+                    for (int p = 0; p < placeholders.length; p++) {
+                        if (format.startsWith("{" + placeholders[p] + "}", i)) {
+                            matched = p;
+                            break;
+                        }
+                    }
+                }
+                if (matched >= 0) {
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    slots.add(matched);
+                    i += placeholders[matched].length() + 2;
+                } else {
+                    literal.append(format.charAt(i++));
+                }
+            }
+            literals.add(literal.toString());
+            return new Template(literals.toArray(new String[0]), slots.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        boolean isEmpty() {
+            return slots.length == 0 && literals[0].isEmpty();
+        }
+
+        String render(String... values) {
+            StringBuilder out = new StringBuilder(64);
+            for (int i = 0; i < slots.length; i++) {
+                out.append(literals[i]).append(values[slots[i]]);
+            }
+            return out.append(literals[slots.length]).toString();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package hu.snowylol.networkjs;
 
+import dev.latvian.mods.rhino.Context;
 import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.JDABuilder;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
@@ -7,33 +8,48 @@ import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.dv8tion.jda.api.requests.GatewayIntent;
 import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
 
 import java.util.Map;
 import java.util.HashMap;
 import java.util.function.Consumer;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.regex.Pattern;
 import java.util.regex.Matcher;
 
 public class DiscordBinding {
+    // Connected bots, the outbox delivers through whichever one can see the target channel
+    private static final Set<DiscordBinding> activeBots = ConcurrentHashMap.newKeySet();
+    
     private JDA jda;
+    // Bot user id, stays the same when scripts reload and rebuild the bot so queued outbox entries find it again
+    private String selfId;
     private String token;
     private Map<String, String> channels;
     private boolean sanitizeMessages;
+    private boolean useOutbox;
     private List<Consumer<DiscordMessage>> messageCallbacks;
+    private final Runnable lifecycleHandle = this::shutdown;
     
-    public DiscordBinding(Map<String, Object> configMap) {
+    public DiscordBinding(Context cx, Map<String, Object> configMap) {
         this.token = (String) configMap.get("token");
         this.channels = (Map<String, String>) configMap.getOrDefault("channels", new HashMap<>());
         this.sanitizeMessages = (Boolean) configMap.getOrDefault("sanitizeMessages", true);
-        this.messageCallbacks = new ArrayList<>();
+        this.useOutbox = (Boolean) configMap.getOrDefault("outbox", true) && Outbox.isEnabled();
+        this.messageCallbacks = new CopyOnWriteArrayList<>();
         
         if (this.token == null) {
             throw new IllegalArgumentException("Discord token is required");
         }
         
         initialize();
+        // The bot belongs to the script generation that created it, reloads/server stop shut it down
+        NetworkJSLifecycle.register(NetworkJSLifecycle.ownerOf(cx), lifecycleHandle);
     }
     
     private void initialize() {
@@ -44,7 +60,10 @@ public class DiscordBinding {
                     .build();
                     
             this.jda.awaitReady();
+            this.selfId = jda.getSelfUser().getId();
             NetworkJS.LOGGER.info("Discord bot connected successfully");
+            activeBots.add(this);
+            Outbox.wakeUp();
         } catch (Exception e) {
             NetworkJS.LOGGER.error("Failed to initialize Discord bot: " + e.getMessage());
             throw new RuntimeException("Discord bot initialization failed", e);
@@ -95,6 +114,10 @@ public class DiscordBinding {
             }
             
             String finalMessage = sanitizeMessages ? sanitizeMessage(message) : message;
+            if (useOutbox) {
+                return Outbox.enqueueDiscordMessage(selfId, channelId, finalMessage);
+            }
+            
             channel.sendMessage(finalMessage).queue();
             return true;
         } catch (Exception e) {
@@ -117,26 +140,15 @@ public class DiscordBinding {
                 return false;
             }
             
-            EmbedBuilder builder = new EmbedBuilder();
-            
-            if (embedData.containsKey("title")) {
-                builder.setTitle((String) embedData.get("title"));
-            }
-            if (embedData.containsKey("description")) {
-                String desc = (String) embedData.get("description");
-                builder.setDescription(sanitizeMessages ? sanitizeMessage(desc) : desc);
+            Map<String, Object> embed = new HashMap<>(embedData);
+            if (sanitizeMessages && embed.get("description") instanceof String desc) {
+                embed.put("description", sanitizeMessage(desc));
             }
-            if (embedData.containsKey("color")) {
-                Object colorObj = embedData.get("color");
-                if (colorObj instanceof Number) {
-                    builder.setColor(((Number) colorObj).intValue());
-                }
-            }
-            if (embedData.containsKey("footer")) {
-                builder.setFooter((String) embedData.get("footer"));
+            if (useOutbox) {
+                return Outbox.enqueueDiscordEmbed(selfId, channelId, embed);
             }
             
-            channel.sendMessageEmbeds(builder.build()).queue();
+            channel.sendMessageEmbeds(buildEmbed(embed)).queue();
             return true;
         } catch (Exception e) {
             NetworkJS.LOGGER.error("Failed to send Discord embed: " + e.getMessage());
@@ -144,6 +156,54 @@ public class DiscordBinding {
         }
     }
     
+    private static MessageEmbed buildEmbed(Map<String, Object> embedData) {
+        EmbedBuilder builder = new EmbedBuilder();
+        
+        if (embedData.containsKey("title")) {
+            builder.setTitle((String) embedData.get("title"));
+        }
+        if (embedData.containsKey("description")) {
+            builder.setDescription((String) embedData.get("description"));
+        }
+        if (embedData.containsKey("color")) {
+            Object colorObj = embedData.get("color");
+            if (colorObj instanceof Number) {
+                builder.setColor(((Number) colorObj).intValue());
+            }
+        }
+        if (embedData.containsKey("footer")) {
+            builder.setFooter((String) embedData.get("footer"));
+        }
+        return builder.build();
+    }
+    
+    /**
+     * Blocking send used by the outbox thread, always through the bot that queued the entry.
+     * Returns false while that bot isn't connected or can't see the channel (e.g. during a reload or a guild outage),
+     * the entry is kept and retried.
+     */
+    static boolean deliverFromOutbox(String botId, String channelId, String content, Map<String, Object> embed) {
+        for (DiscordBinding bot : activeBots) {
+            if (!bot.selfId.equals(botId)) continue;
+            if (bot.jda.getStatus() != JDA.Status.CONNECTED) return false;
+            TextChannel channel = bot.jda.getTextChannelById(channelId);
+            if (channel == null) return false;
+            
+            try {
+                if (embed != null) {
+                    channel.sendMessageEmbeds(buildEmbed(embed)).complete();
+                } else {
+                    channel.sendMessage(content).complete();
+                }
+                return true;
+            } catch (ErrorResponseException e) {
+                // Discord rejected it (permissions, invalid content...), retrying won't help
+                throw new Outbox.OutboxRejectedException(e.getMeaning(), e);
+            }
+        }
+        return false;
+    }
+    
     public void setActivity(String activity) {
         try {
             jda.getPresence().setActivity(net.dv8tion.jda.api.entities.Activity.playing(activity));
@@ -153,6 +213,10 @@ public class DiscordBinding {
     }
     
     public void shutdown() {
+        activeBots.remove(this);
+        NetworkJSLifecycle.unregister(lifecycleHandle);
+        // Callbacks point into the old script context, never call them again
+        messageCallbacks.clear();
         if (jda != null) {
             jda.shutdown();
         }
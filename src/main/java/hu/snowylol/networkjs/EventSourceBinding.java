@@ -0,0 +1,144 @@
+package hu.snowylol.networkjs;
+
+import dev.latvian.mods.rhino.Context;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.sse.EventSource;
+import okhttp3.sse.EventSourceListener;
+import okhttp3.sse.EventSources;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Server-Sent Events client, resumes from the last received event id after a reconnect.
+ */
+public class EventSourceBinding extends StreamConnection {
+    private static final EventSource.Factory factory = EventSources.createFactory(getStreamClient());
+
+    private final List<Consumer<ServerSentEvent>> messageCallbacks = new CopyOnWriteArrayList<>();
+    private final Map<String, List<Consumer<ServerSentEvent>>> eventCallbacks = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> errorCallbacks = new CopyOnWriteArrayList<>();
+
+    private volatile EventSource source;
+    private volatile Listener currentListener;
+    private volatile String lastEventId;
+    private volatile boolean connected;
+
+    public EventSourceBinding(Context cx, String url) {
+        this(cx, url, Map.of());
+    }
+
+    public EventSourceBinding(Context cx, String url, Map<String, Object> options) {
+        super(cx, url, options);
+        start();
+    }
+
+    @Override
+    protected void connect() {
+        Request.Builder requestBuilder = newRequest().header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            requestBuilder.header("Last-Event-ID", lastEventId);
+        }
+        Listener listener = new Listener();
+        currentListener = listener;
+        source = factory.newEventSource(requestBuilder.build(), listener);
+    }
+
+    @Override
+    protected void disconnect() {
+        connected = false;
+        EventSource current = source;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    public boolean isConnected() { return connected; }
+    public String getLastEventId() { return lastEventId; }
+
+    /**
+     * Called for every event, whatever its type
+     */
+    public void onMessage(Consumer<ServerSentEvent> callback) {
+        messageCallbacks.add(callback);
+    }
+
+    /**
+     * Called only for events with the given type ("message" for untyped events)
+     */
+    public void onEvent(String type, Consumer<ServerSentEvent> callback) {
+        eventCallbacks.computeIfAbsent(type, k -> new CopyOnWriteArrayList<>()).add(callback);
+    }
+
+    public void onError(Consumer<String> callback) {
+        errorCallbacks.add(callback);
+    }
+
+    public static class ServerSentEvent {
+        private final String id;
+        private final String type;
+        private final String data;
+
+        public ServerSentEvent(String id, String type, String data) {
+            this.id = id;
+            this.type = type;
+            this.data = data;
+        }
+
+        public String getId() { return id; }
+        public String getType() { return type; }
+        public String getData() { return data; }
+    }
+
+    private class Listener extends EventSourceListener {
+        // Events from a stream we already replaced (reconnect) or closed are ignored
+        private boolean isStale() {
+            return closed || this != currentListener;
+        }
+
+        @Override
+        public void onOpen(EventSource eventSource, Response response) {
+            if (isStale()) return;
+            connected = true;
+            onConnected();
+            NetworkJS.LOGGER.info("Event stream connected: {}", url);
+        }
+
+        @Override
+        public void onEvent(EventSource eventSource, String id, String type, String data) {
+            if (isStale()) return;
+            if (id != null) {
+                lastEventId = id;
+            }
+            ServerSentEvent event = new ServerSentEvent(id, type != null ? type : "message", data);
+            enqueue(() -> {
+                dispatch(messageCallbacks, event);
+                List<Consumer<ServerSentEvent>> typed = eventCallbacks.get(event.getType());
+                if (typed != null) {
+                    dispatch(typed, event);
+                }
+            });
+        }
+
+        @Override
+        public void onClosed(EventSource eventSource) {
+            if (isStale()) return;
+            connected = false;
+            onDisconnected();
+        }
+
+        @Override
+        public void onFailure(EventSource eventSource, Throwable t, Response response) {
+            if (isStale()) return;
+            connected = false;
+            String reason = t != null ? t.getMessage() : response != null ? "HTTP " + response.code() : "unknown error";
+            NetworkJS.LOGGER.warn("Event stream " + url + " failed: " + reason);
+            enqueue(() -> dispatch(errorCallbacks, reason));
+            onDisconnected();
+        }
+    }
+}
@@ -4,26 +4,51 @@ import okhttp3.*;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import dev.latvian.mods.kubejs.script.ScriptType;
+import dev.latvian.mods.rhino.Context;
+import hu.snowylol.networkjs.AbortController.AbortSignal;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.TimeUnit;
 
 public class FetchBinding {
-    private static final OkHttpClient client = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(30, TimeUnit.SECONDS)
-            .build();
-    
     private static final Gson gson = new Gson();
+    
+    // Holder so OkHttp (and its thread pools) is only set up by the first request, not by loading the bindings
+    private static class ClientHolder {
+        private static final OkHttpClient client = new OkHttpClient.Builder()
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(30, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .build();
+    }
+    
+    static OkHttpClient getClient() {
+        return ClientHolder.client;
+    }
 
-    public static FetchResponse fetch(String url) {
-        return fetch(url, null);
+    public static FetchResponse fetch(Context cx, String url) {
+        return fetch(cx, url, null);
     }
 
-    public static FetchResponse fetch(String url, FetchOptions options) {
+    public static FetchResponse fetch(Context cx, String url, FetchOptions options) {
+        ScriptType owner = NetworkJSLifecycle.ownerOf(cx);
+        return fetch(url, options, owner, NetworkJSLifecycle.currentGeneration(owner));
+    }
+
+    private static FetchResponse fetch(String url, FetchOptions options, ScriptType owner, int scriptGeneration) {
+        AbortSignal signal = options != null ? options.signal : null;
+        if (signal != null && signal.isAborted()) {
+            throw new CancellationException("Fetch aborted: " + signal.getReason());
+        }
+        if (!NetworkJSLifecycle.isCurrent(owner, scriptGeneration)) {
+            throw new CancellationException("Fetch cancelled: scripts were reloaded");
+        }
+        
         try {
             Request.Builder requestBuilder = new Request.Builder().url(url);
             
@@ -68,9 +93,37 @@ public class FetchBinding {
             }
             
             Request request = requestBuilder.build();
+            Call call = getClient().newCall(request);
+            
+            if (options != null && options.timeout > 0) {
+                call.timeout().timeout(options.timeout, TimeUnit.MILLISECONDS);
+            }
+            
+            Runnable cancelHandle = NetworkJSLifecycle.register(owner, call::cancel);
+            if (signal != null) {
+                signal.addListener(cancelHandle);
+            }
+            // a reload may have happened between the generation check and registering
+            if (!NetworkJSLifecycle.isCurrent(owner, scriptGeneration)) {
+                call.cancel();
+            }
             
-            try (Response response = client.newCall(request).execute()) {
+            try (Response response = call.execute()) {
                 return new FetchResponse(response);
+            } catch (IOException e) {
+                // Not call.isCanceled(): an expired call timeout cancels the call too, but that is a failure, not an abort
+                if (signal != null && signal.isAborted()) {
+                    throw new CancellationException("Fetch aborted: " + signal.getReason());
+                }
+                if (!NetworkJSLifecycle.isCurrent(owner, scriptGeneration)) {
+                    throw new CancellationException("Fetch cancelled: scripts were reloaded or server stopped");
+                }
+                throw e;
+            } finally {
+                NetworkJSLifecycle.unregister(cancelHandle);
+                if (signal != null) {
+                    signal.removeListener(cancelHandle);
+                }
             }
             
         } catch (IOException e) {
@@ -79,18 +132,39 @@ public class FetchBinding {
         }
     }
 
-    public static CompletableFuture<FetchResponse> fetchAsync(String url) {
-        return fetchAsync(url, null);
+    public static CompletableFuture<FetchResponse> fetchAsync(Context cx, String url) {
+        return fetchAsync(cx, url, null);
     }
 
-    public static CompletableFuture<FetchResponse> fetchAsync(String url, FetchOptions options) {
-        return CompletableFuture.supplyAsync(() -> fetch(url, options));
+    public static CompletableFuture<FetchResponse> fetchAsync(Context cx, String url, FetchOptions options) {
+        // Owner is captured here, the request itself runs on a pool thread
+        ScriptType owner = NetworkJSLifecycle.ownerOf(cx);
+        int scriptGeneration = NetworkJSLifecycle.currentGeneration(owner);
+        CompletableFuture<FetchResponse> result = new CompletableFuture<>();
+        CompletableFuture.supplyAsync(() -> fetch(url, options, owner, scriptGeneration)).whenComplete((response, error) -> {
+            if (error == null) {
+                result.complete(response);
+                return;
+            }
+            // supplyAsync wraps everything in a CompletionException, unwrap it so an abort/reload
+            // shows up as a real cancellation (isCancelled(), CancellationException in exceptionally)
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof CancellationException) {
+                result.cancel(false);
+            } else {
+                result.completeExceptionally(cause);
+            }
+        });
+        return result;
     }
 
     public static class FetchOptions {
         public String method;
         public Map<String, String> headers;
         public String body;
+        /** Deadline for the whole call in milliseconds, 0 keeps the default timeouts */
+        public long timeout;
+        public AbortSignal signal;
         
         public FetchOptions() {}
         
@@ -99,6 +173,12 @@ public class FetchBinding {
             this.headers = headers;
             this.body = body != null ? body.toString() : null;
         }
+        
+        public FetchOptions(String method, Map<String, String> headers, Object body, long timeout, AbortSignal signal) {
+            this(method, headers, body);
+            this.timeout = timeout;
+            this.signal = signal;
+        }
     }
 
     public static class FetchResponse {
@@ -108,7 +188,8 @@ public class FetchBinding {
         private final String bodyText;
         private final boolean ok;
         
-        public FetchResponse(Response response) throws IOException {
+        // Package-private so exposing FetchResponse to scripts doesn't drag okhttp3.Response into reflection
+        FetchResponse(Response response) throws IOException {
             this.status = response.code();
             this.statusText = response.message();
             this.ok = response.isSuccessful();
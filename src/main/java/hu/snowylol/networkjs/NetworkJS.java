@@ -17,13 +17,40 @@ public class NetworkJS {
     
     private static boolean registryEnabled = false;
     private static boolean singleplayerWarningShown = false;
-    private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    
+    // Holder so the scheduler thread is only started once something actually needs it
+    private static class SchedulerHolder {
+        private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1, runnable -> {
+            Thread thread = new Thread(runnable, "NetworkJS Scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
 
     public static void init() {
         LOGGER.info("NetworkJS initialized - welcome to java");
         // Don't check singleplayer here - wait for server to start
     }
     
+    /**
+     * Shared scheduler for timed NetworkJS work (polling, warnings).
+     * Only use it to schedule - blocking network calls belong on OkHttp's own threads.
+     */
+    static ScheduledExecutorService getScheduler() {
+        return SchedulerHolder.scheduler;
+    }
+    
+    /**
+     * Runs a task on the server thread, where it is safe to call back into scripts.
+     * Dropped if no server is running.
+     */
+    static void runOnServerThread(Runnable task) {
+        MinecraftServer server = ServerLifecycleHooks.getCurrentServer();
+        if (server != null) {
+            server.execute(task);
+        }
+    }
+    
     public static boolean isRegistryEnabled() {
         return registryEnabled;
     }
@@ -66,7 +93,7 @@ public class NetworkJS {
                     LOGGER.warn("NetworkJS detected singleplayer mode - registry disabled by default");
                     
                     // Since Dedicated servers doenst get this, and singleplayer only loads if you join a world this is actually working
-                    scheduler.schedule(() -> {
+                    getScheduler().schedule(() -> {
                         sendWarningToChat(warning);
                     }, 3, TimeUnit.SECONDS);
             } else if (server instanceof DedicatedServer && !registryEnabled) {
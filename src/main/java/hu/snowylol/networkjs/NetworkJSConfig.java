@@ -0,0 +1,123 @@
+package hu.snowylol.networkjs;
+
+import net.neoforged.neoforge.common.ModConfigSpec;
+
+/**
+ * config/networkjs-common.toml
+ */
+public class NetworkJSConfig {
+    public static final ModConfigSpec SPEC;
+
+    public static final ModConfigSpec.BooleanValue HTTP_ENABLED;
+    public static final ModConfigSpec.ConfigValue<String> HTTP_BIND_ADDRESS;
+    public static final ModConfigSpec.IntValue HTTP_PORT;
+    public static final ModConfigSpec.ConfigValue<String> HTTP_SECRET;
+    public static final ModConfigSpec.IntValue HTTP_MAX_BODY_SIZE;
+    public static final ModConfigSpec.IntValue HTTP_THREADS;
+    public static final ModConfigSpec.IntValue HTTP_MAX_PENDING;
+    public static final ModConfigSpec.IntValue HTTP_BATCH_SIZE;
+    public static final ModConfigSpec.IntValue HTTP_HANDLER_TIMEOUT;
+
+    public static final ModConfigSpec.BooleanValue OUTBOX_ENABLED;
+    public static final ModConfigSpec.IntValue OUTBOX_MAX_ENTRIES;
+    public static final ModConfigSpec.IntValue OUTBOX_MAX_JOURNAL_SIZE;
+    public static final ModConfigSpec.IntValue OUTBOX_FSYNC_INTERVAL;
+
+    public static final ModConfigSpec.BooleanValue BRIDGE_ENABLED;
+    public static final ModConfigSpec.ConfigValue<String> BRIDGE_TOKEN;
+    public static final ModConfigSpec.ConfigValue<String> BRIDGE_CHANNEL_ID;
+    public static final ModConfigSpec.ConfigValue<String> BRIDGE_CHAT_FORMAT;
+    public static final ModConfigSpec.ConfigValue<String> BRIDGE_JOIN_FORMAT;
+    public static final ModConfigSpec.ConfigValue<String> BRIDGE_LEAVE_FORMAT;
+    public static final ModConfigSpec.ConfigValue<String> BRIDGE_DEATH_FORMAT;
+    public static final ModConfigSpec.ConfigValue<String> BRIDGE_DISCORD_FORMAT;
+    public static final ModConfigSpec.IntValue BRIDGE_BATCH_INTERVAL;
+    public static final ModConfigSpec.IntValue BRIDGE_MAX_QUEUE;
+
+    static {
+        ModConfigSpec.Builder builder = new ModConfigSpec.Builder();
+
+        builder.comment("Embedded HTTP server so external systems (store, panel, CI) can push webhooks into scripts")
+                .push("httpServer");
+        HTTP_ENABLED = builder
+                .comment("Start the HTTP server when the Minecraft server starts")
+                .define("enabled", false);
+        HTTP_BIND_ADDRESS = builder
+                .comment("Address to listen on, use 127.0.0.1 if a reverse proxy sits in front")
+                .define("bindAddress", "0.0.0.0");
+        HTTP_PORT = builder
+                .defineInRange("port", 8765, 1, 65535);
+        HTTP_SECRET = builder
+                .comment("Shared secret required in the 'X-NetworkJS-Secret' header (or 'Authorization: Bearer <secret>').",
+                        "While empty, routes without their own secret reject every request with 401.",
+                        "Routes can override it, a route secret of \"\" makes that route public.")
+                .define("secret", "");
+        HTTP_MAX_BODY_SIZE = builder
+                .comment("Default maximum request body size in bytes, routes can override it")
+                .defineInRange("maxBodySize", 65536, 0, 16 * 1024 * 1024);
+        HTTP_THREADS = builder
+                .comment("Threads accepting and reading requests")
+                .defineInRange("threads", 2, 1, 16);
+        HTTP_MAX_PENDING = builder
+                .comment("Requests waiting for the server thread before new ones get 503")
+                .defineInRange("maxPending", 256, 1, 65536);
+        HTTP_BATCH_SIZE = builder
+                .comment("Requests handed to script handlers per server tick")
+                .defineInRange("batchSize", 32, 1, 4096);
+        HTTP_HANDLER_TIMEOUT = builder
+                .comment("Milliseconds to wait for a script handler before answering 504")
+                .defineInRange("handlerTimeout", 5000, 100, 60000);
+        builder.pop();
+
+        builder.comment("Disk-backed outbox (networkjs/outbox.journal) so Discord and webhook sends survive outages and restarts")
+                .push("outbox");
+        OUTBOX_ENABLED = builder
+                .comment("Queue Discord messages/embeds and Outbox sends on disk and deliver them in order")
+                .define("enabled", false);
+        OUTBOX_MAX_ENTRIES = builder
+                .comment("Undelivered entries kept before new sends are rejected")
+                .defineInRange("maxEntries", 10000, 1, 1000000);
+        OUTBOX_MAX_JOURNAL_SIZE = builder
+                .comment("Journal size in bytes before new sends are rejected (delivered entries are compacted away first)")
+                .defineInRange("maxJournalSize", 16 * 1024 * 1024, 64 * 1024, Integer.MAX_VALUE);
+        OUTBOX_FSYNC_INTERVAL = builder
+                .comment("Milliseconds between journal fsyncs, writes in between are batched")
+                .defineInRange("fsyncInterval", 1000, 10, 60000);
+        builder.pop();
+
+        builder.comment("Built-in Minecraft <-> Discord chat relay, runs without any scripts")
+                .push("bridge");
+        BRIDGE_ENABLED = builder
+                .define("enabled", false);
+        BRIDGE_TOKEN = builder
+                .comment("Bot token used by the bridge (needs the Message Content intent)")
+                .define("token", "");
+        BRIDGE_CHANNEL_ID = builder
+                .comment("Discord channel relayed to and from Minecraft chat")
+                .define("channelId", "");
+        BRIDGE_CHAT_FORMAT = builder
+                .comment("Minecraft chat -> Discord, placeholders: {player} {message}")
+                .define("chatFormat", "**{player}**: {message}");
+        BRIDGE_JOIN_FORMAT = builder
+                .comment("Join message sent to Discord, placeholders: {player}. Empty disables it")
+                .define("joinFormat", "**{player}** joined the server");
+        BRIDGE_LEAVE_FORMAT = builder
+                .comment("Leave message sent to Discord, placeholders: {player}. Empty disables it")
+                .define("leaveFormat", "**{player}** left the server");
+        BRIDGE_DEATH_FORMAT = builder
+                .comment("Death message sent to Discord, placeholders: {player} {message}. Empty disables it")
+                .define("deathFormat", "{message}");
+        BRIDGE_DISCORD_FORMAT = builder
+                .comment("Discord -> Minecraft chat, & color codes allowed, placeholders: {author} {message}")
+                .define("discordFormat", "&9[Discord] &f{author}: {message}");
+        BRIDGE_BATCH_INTERVAL = builder
+                .comment("Milliseconds Minecraft lines are collected into one Discord message")
+                .defineInRange("batchInterval", 1000, 50, 60000);
+        BRIDGE_MAX_QUEUE = builder
+                .comment("Lines buffered in each direction before the oldest are dropped")
+                .defineInRange("maxQueue", 500, 1, 100000);
+        builder.pop();
+
+        SPEC = builder.build();
+    }
+}
@@ -0,0 +1,94 @@
+package hu.snowylol.networkjs;
+
+import dev.latvian.mods.kubejs.script.KubeJSContext;
+import dev.latvian.mods.kubejs.script.ScriptType;
+import dev.latvian.mods.rhino.Context;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks everything owned by the loaded scripts (in-flight fetch calls, Discord bots, ...)
+ * per script type, so reloading server scripts only cancels what server scripts created
+ * and stopping the server cancels everything.
+ */
+public class NetworkJSLifecycle {
+    private static final Map<ScriptType, AtomicInteger> generations = new EnumMap<>(ScriptType.class);
+    private static final Map<Runnable, ScriptType> resources = new ConcurrentHashMap<>();
+
+    static {
+        for (ScriptType type : ScriptType.values()) {
+            generations.put(type, new AtomicInteger());
+        }
+    }
+
+    /**
+     * Script type of the script making the call. Bindings take the Rhino context as their first
+     * parameter so this follows the calling script on any thread (JDA callbacks, fetchAsync continuations...)
+     */
+    public static ScriptType ownerOf(Context cx) {
+        return cx instanceof KubeJSContext kjs ? kjs.getType() : ScriptType.SERVER;
+    }
+
+    public static int currentGeneration(ScriptType owner) {
+        return generations.get(owner).get();
+    }
+
+    public static boolean isCurrent(ScriptType owner, int scriptGeneration) {
+        return generations.get(owner).get() == scriptGeneration;
+    }
+
+    /**
+     * Registers a cancel handle owned by the given script type.
+     * The same instance must be passed to {@link #unregister} once the resource is done.
+     */
+    public static Runnable register(ScriptType owner, Runnable cancelHandle) {
+        resources.put(cancelHandle, owner);
+        return cancelHandle;
+    }
+
+    public static void unregister(Runnable cancelHandle) {
+        resources.remove(cancelHandle);
+    }
+
+    /**
+     * Starts a new generation for the given script type, cancelling everything its previous scripts still own
+     */
+    public static void beginGeneration(ScriptType type, String reason) {
+        generations.get(type).incrementAndGet();
+        cancel(type, reason);
+    }
+
+    /**
+     * Cancels every registered resource whatever script type owns it, used when the server stops.
+     * Every generation moves on as well so in-flight calls know they were cancelled.
+     */
+    public static void cancelAll(String reason) {
+        generations.values().forEach(AtomicInteger::incrementAndGet);
+        cancel(null, reason);
+    }
+
+    private static void cancel(ScriptType owner, String reason) {
+        List<Runnable> owned = new ArrayList<>();
+        resources.forEach((cancelHandle, type) -> {
+            if (owner == null || owner == type) {
+                owned.add(cancelHandle);
+            }
+        });
+        owned.forEach(resources::remove);
+        if (owned.isEmpty()) return;
+
+        NetworkJS.LOGGER.info("Cancelling {} NetworkJS call(s) and connection(s): {}", owned.size(), reason);
+        for (Runnable cancelHandle : owned) {
+            try {
+                cancelHandle.run();
+            } catch (Exception e) {
+                NetworkJS.LOGGER.error("Failed to cancel NetworkJS resource: " + e.getMessage());
+            }
+        }
+    }
+}
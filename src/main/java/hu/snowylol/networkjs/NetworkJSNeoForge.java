@@ -1,17 +1,22 @@
 package hu.snowylol.networkjs;
 
+import net.neoforged.bus.api.EventPriority;
 import net.neoforged.bus.api.IEventBus;
 import net.neoforged.fml.common.Mod;
 import net.neoforged.fml.ModContainer;
+import net.neoforged.fml.config.ModConfig;
 import net.neoforged.neoforge.common.NeoForge;
 import net.neoforged.neoforge.event.RegisterCommandsEvent;
 import net.neoforged.neoforge.event.server.ServerStartingEvent;
+import net.neoforged.neoforge.event.server.ServerStoppedEvent;
 import net.neoforged.neoforge.event.server.ServerStoppingEvent;
+import net.neoforged.neoforge.event.tick.ServerTickEvent;
 
 @Mod(NetworkJS.MODID)
 public class NetworkJSNeoForge {
     public NetworkJSNeoForge(IEventBus modEventBus, ModContainer modContainer) {
         NetworkJS.init();
+        modContainer.registerConfig(ModConfig.Type.COMMON, NetworkJSConfig.SPEC);
         
         // Register command
         NeoForge.EVENT_BUS.addListener(this::onRegisterCommands);
@@ -19,6 +24,16 @@ public class NetworkJSNeoForge {
         // Handle server lifecycle
         NeoForge.EVENT_BUS.addListener(this::onServerStarting);
         NeoForge.EVENT_BUS.addListener(this::onServerStopping);
+        NeoForge.EVENT_BUS.addListener(this::onServerStopped);
+        
+        // Hand buffered WebSocket/SSE events, webhook requests and bridged chat to the server thread once per tick
+        NeoForge.EVENT_BUS.addListener(this::onServerTick);
+        
+        // Chat bridge runs last so messages cancelled by other mods aren't relayed
+        NeoForge.EVENT_BUS.addListener(EventPriority.LOWEST, ChatBridge::onChat);
+        NeoForge.EVENT_BUS.addListener(EventPriority.LOWEST, ChatBridge::onPlayerJoin);
+        NeoForge.EVENT_BUS.addListener(EventPriority.LOWEST, ChatBridge::onPlayerLeave);
+        NeoForge.EVENT_BUS.addListener(EventPriority.LOWEST, ChatBridge::onDeath);
     }
     
     private void onRegisterCommands(RegisterCommandsEvent event) {
@@ -29,10 +44,27 @@ public class NetworkJSNeoForge {
         NetworkJS.LOGGER.info("Server starting - NetworkJS ready");
         // Check for singleplayer and show warning after server is started
         NetworkJS.checkSingleplayerAndWarn();
+        WebServerBinding.start();
+        Outbox.open();
+        ChatBridge.start();
+    }
+    
+    private void onServerTick(ServerTickEvent.Post event) {
+        StreamConnection.tickAll();
+        WebServerBinding.tick();
+        ChatBridge.tick();
     }
     
     private void onServerStopping(ServerStoppingEvent event) {
         NetworkJS.disableRegistry();
+        NetworkJSLifecycle.cancelAll("server stopping");
+        WebServerBinding.stop();
+        ChatBridge.stop();
         NetworkJS.LOGGER.info("Server stopping - NetworkJS registry disabled");
     }
+    
+    private void onServerStopped(ServerStoppedEvent event) {
+        // Last, so sends made while stopping still reach the journal
+        Outbox.close();
+    }
 }
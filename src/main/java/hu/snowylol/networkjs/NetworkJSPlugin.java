@@ -2,63 +2,123 @@ package hu.snowylol.networkjs;
 
 import dev.latvian.mods.kubejs.plugin.KubeJSPlugin;
 import dev.latvian.mods.kubejs.script.BindingRegistry;
+import dev.latvian.mods.kubejs.script.ScriptType;
+import dev.latvian.mods.rhino.Callable;
+import dev.latvian.mods.rhino.Context;
+import dev.latvian.mods.rhino.Wrapper;
+import dev.latvian.mods.rhino.type.TypeInfo;
+import hu.snowylol.networkjs.AbortController.AbortSignal;
 import hu.snowylol.networkjs.FetchBinding.FetchOptions;
+import hu.snowylol.networkjs.FetchBinding.FetchResponse;
+import hu.snowylol.networkjs.PollBinding.PollOptions;
 
 import java.util.Map;
+import java.util.function.Consumer;
 
 public class NetworkJSPlugin implements KubeJSPlugin {
     
     @Override
+    @SuppressWarnings("unchecked")
     public void registerBindings(BindingRegistry bindings) {
         NetworkJS.LOGGER.info("Registering NetworkJS bindings...");
         
-        bindings.add("fetch", (FetchFunction) (url, options) -> {
+        // New script generation - anything the old scripts of this type still run is cancelled,
+        // resources owned by other script types (e.g. startup bots during a server reload) are kept
+        ScriptType type = bindings.type();
+        NetworkJSLifecycle.beginGeneration(type, type.name().toLowerCase() + " scripts reloaded");
+        
+        bindings.add("fetch", (FetchFunction) (cx, url, options) -> {
             if (!NetworkJS.isRegistryEnabled()) {
                 throw new RuntimeException("NetworkJS registry is disabled! Use /networkjs enable to enable fetch functionality.");
             }
             
             if (options instanceof Map<?, ?> opts) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> optMap = (Map<String, Object>) opts;
-                FetchOptions javaOptions = new FetchOptions(
-                    (String) optMap.getOrDefault("method", "GET"),
-                    (Map<String, String>) optMap.getOrDefault("headers", Map.of()),
-                    optMap.getOrDefault("body", null)
-                );
-                return FetchBinding.fetch(url, javaOptions);
+                return FetchBinding.fetch(cx, url, toFetchOptions(opts));
             }
-            return FetchBinding.fetch(url);
+            return FetchBinding.fetch(cx, url);
         });
 
-        bindings.add("fetchAsync", (FetchFunction) (url, options) -> {
+        bindings.add("fetchAsync", (FetchFunction) (cx, url, options) -> {
             if (!NetworkJS.isRegistryEnabled()) {
                 throw new RuntimeException("NetworkJS registry is disabled! Use /networkjs enable to enable fetch functionality.");
             }
             
             if (options instanceof Map<?, ?> opts) {
-                @SuppressWarnings("unchecked")
-                Map<String, Object> optMap = (Map<String, Object>) opts;
-                FetchOptions javaOptions = new FetchOptions(
-                    (String) optMap.getOrDefault("method", "GET"),
-                    (Map<String, String>) optMap.getOrDefault("headers", Map.of()),
-                    optMap.getOrDefault("body", null)
-                );
-                return FetchBinding.fetchAsync(url, javaOptions);
+                return FetchBinding.fetchAsync(cx, url, toFetchOptions(opts));
+            }
+            return FetchBinding.fetchAsync(cx, url);
+        });
+
+        bindings.add("poll", (PollFunction) (cx, url, options, callback) -> {
+            if (!NetworkJS.isRegistryEnabled()) {
+                throw new RuntimeException("NetworkJS registry is disabled! Use /networkjs enable to enable poll functionality.");
+            }
+            
+            if (options instanceof Map<?, ?> opts) {
+                return PollBinding.poll(cx, url, toPollOptions(opts), callback);
             }
-            return FetchBinding.fetchAsync(url);
+            // poll(url, callback) - the function arrives in the options slot
+            if (callback == null && options instanceof Callable) {
+                return PollBinding.poll(cx, url, (Consumer<FetchResponse>) cx.jsToJava(options, TypeInfo.of(Consumer.class)));
+            }
+            return PollBinding.poll(cx, url, callback);
         });
 
         bindings.add("FetchBinding", FetchBinding.class);
         bindings.add("FetchOptions", FetchOptions.class);
         bindings.add("FetchResponse", FetchBinding.FetchResponse.class);
+        bindings.add("AbortController", AbortController.class);
+        bindings.add("PollBinding", PollBinding.class);
         bindings.add("DiscordBot", DiscordBinding.class);
+        bindings.add("WebSocket", WebSocketBinding.class);
+        bindings.add("EventSource", EventSourceBinding.class);
+        bindings.add("WebServer", WebServerBinding.class);
+        bindings.add("Outbox", Outbox.class);
+        bindings.add("ChatBridge", ChatBridge.class);
         bindings.add("Server", ServerBinding.class);
         
         NetworkJS.LOGGER.info("NetworkJS bindings registered successfully");
     }
 
+    @SuppressWarnings("unchecked")
+    private static FetchOptions toFetchOptions(Map<?, ?> opts) {
+        Map<String, Object> optMap = (Map<String, Object>) opts;
+        Object signal = unwrap(optMap.get("signal"));
+        return new FetchOptions(
+            (String) optMap.getOrDefault("method", "GET"),
+            (Map<String, String>) optMap.getOrDefault("headers", Map.of()),
+            optMap.getOrDefault("body", null),
+            toLong(optMap.get("timeout")),
+            signal instanceof AbortSignal s ? s : null
+        );
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PollOptions toPollOptions(Map<?, ?> opts) {
+        Map<String, Object> optMap = (Map<String, Object>) opts;
+        return new PollOptions(
+            toLong(optMap.get("interval")),
+            toLong(optMap.get("jitter")),
+            toLong(optMap.get("maxInterval")),
+            (Map<String, String>) optMap.getOrDefault("headers", Map.of())
+        );
+    }
+
+    private static long toLong(Object value) {
+        return unwrap(value) instanceof Number n ? n.longValue() : 0L;
+    }
+
+    private static Object unwrap(Object value) {
+        return value instanceof Wrapper w ? w.unwrap() : value;
+    }
+
     @FunctionalInterface
     public interface FetchFunction {
-        Object call(String url, Object options);
+        Object call(Context cx, String url, Object options);
+    }
+
+    @FunctionalInterface
+    public interface PollFunction {
+        Object call(Context cx, String url, Object options, Consumer<FetchResponse> callback);
     }
 }
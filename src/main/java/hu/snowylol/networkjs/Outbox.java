@@ -0,0 +1,463 @@
+package hu.snowylol.networkjs;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.neoforged.fml.loading.FMLPaths;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Durable outbox for Discord and webhook sends.
+ * Entries are appended to networkjs/outbox.journal (one JSON object per line, acks are appended as well),
+ * fsynced in batches and delivered in order per destination by a single background thread.
+ * Undelivered entries are replayed on startup, delivered ones are compacted away.
+ */
+public class Outbox {
+    private static final long MIN_RETRY_DELAY = 1000;
+    private static final long MAX_RETRY_DELAY = 60000;
+    // Rewrite the journal once this many delivered entries are sitting in it
+    private static final int COMPACT_THRESHOLD = 1000;
+
+    private static final Gson gson = new Gson();
+    private static final Object lock = new Object();
+    private static final LinkedHashMap<Long, Entry> pending = new LinkedHashMap<>();
+
+    private static Path journalPath;
+    private static FileChannel journal;
+    private static long nextSeq = 1;
+    private static int acked;
+    private static boolean compactRequested;
+    // Records appended while the worker rewrites the journal, copied into the new file before it is swapped in
+    private static List<String> compactionTail;
+    private static volatile boolean dirty;
+    private static volatile Thread worker;
+    private static volatile Thread syncer;
+
+    private enum Result { DELIVERED, RETRY, DROP }
+
+    public static boolean isEnabled() {
+        return NetworkJSConfig.OUTBOX_ENABLED.get();
+    }
+
+    public static int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Queues a webhook/HTTP request. Options: method (default POST), headers, body
+     */
+    @SuppressWarnings("unchecked")
+    public static boolean send(String url, Map<String, Object> options) {
+        if (!NetworkJS.isRegistryEnabled()) {
+            throw new RuntimeException("NetworkJS registry is disabled! Use /networkjs enable to enable the outbox.");
+        }
+        Map<String, Object> opts = options != null ? options : Map.of();
+        Entry entry = new Entry();
+        entry.type = "webhook";
+        entry.url = url;
+        entry.method = (String) opts.getOrDefault("method", "POST");
+        entry.headers = (Map<String, String>) opts.getOrDefault("headers", Map.of());
+        Object body = opts.get("body");
+        entry.body = body != null ? body.toString() : null;
+        return enqueue(entry);
+    }
+
+    public static boolean post(String url, String body) {
+        return send(url, Map.of("body", body));
+    }
+
+    static boolean enqueueDiscordMessage(String botId, String channelId, String content) {
+        Entry entry = new Entry();
+        entry.type = "discord";
+        entry.botId = botId;
+        entry.channelId = channelId;
+        entry.content = content;
+        return enqueue(entry);
+    }
+
+    static boolean enqueueDiscordEmbed(String botId, String channelId, Map<String, Object> embed) {
+        Entry entry = new Entry();
+        entry.type = "discord";
+        entry.botId = botId;
+        entry.channelId = channelId;
+        entry.embed = embed;
+        return enqueue(entry);
+    }
+
+    /**
+     * Wakes the delivery thread, e.g. after a Discord bot connected
+     */
+    static void wakeUp() {
+        synchronized (lock) {
+            lock.notifyAll();
+        }
+    }
+
+    private static boolean enqueue(Entry entry) {
+        if (!isEnabled()) {
+            NetworkJS.LOGGER.warn("Outbox is disabled, enable it in config/networkjs-common.toml");
+            return false;
+        }
+        synchronized (lock) {
+            try {
+                ensureOpen();
+                if (pending.size() >= NetworkJSConfig.OUTBOX_MAX_ENTRIES.get()) {
+                    NetworkJS.LOGGER.warn("Outbox is full ({} entries), rejecting send to {}", pending.size(), entry.target());
+                    return false;
+                }
+                if (journal.size() >= NetworkJSConfig.OUTBOX_MAX_JOURNAL_SIZE.get()) {
+                    // compaction is the worker's job, callers (usually the server thread) never rewrite the file
+                    compactRequested = true;
+                    lock.notifyAll();
+                    NetworkJS.LOGGER.warn("Outbox journal is full, rejecting send to {}", entry.target());
+                    return false;
+                }
+                entry.seq = nextSeq++;
+                append(gson.toJson(entry));
+                pending.put(entry.seq, entry);
+                lock.notifyAll();
+                return true;
+            } catch (IOException e) {
+                NetworkJS.LOGGER.error("Failed to write outbox journal: " + e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    private static void ensureOpen() throws IOException {
+        if (journal != null) return;
+
+        Path directory = FMLPaths.GAMEDIR.get().resolve("networkjs");
+        Files.createDirectories(directory);
+        journalPath = directory.resolve("outbox.journal");
+        replay();
+        journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        // drop what the last run delivered once the worker is up
+        compactRequested = true;
+
+        // force() can block for a long time on a slow disk, so it gets its own thread instead of the shared scheduler
+        syncer = new Thread(Outbox::syncLoop, "NetworkJS Outbox fsync");
+        syncer.setDaemon(true);
+        syncer.start();
+        worker = new Thread(Outbox::deliveryLoop, "NetworkJS Outbox");
+        worker.setDaemon(true);
+        worker.start();
+
+        if (!pending.isEmpty()) {
+            NetworkJS.LOGGER.info("Outbox replaying {} undelivered entries", pending.size());
+        }
+    }
+
+    /**
+     * Opens the journal and starts delivering anything left over from the last run
+     */
+    static void open() {
+        if (!isEnabled()) return;
+        synchronized (lock) {
+            try {
+                ensureOpen();
+            } catch (IOException e) {
+                NetworkJS.LOGGER.error("Failed to open outbox journal: " + e.getMessage());
+            }
+        }
+    }
+
+    static void close() {
+        Thread stopped;
+        synchronized (lock) {
+            if (journal == null) return;
+            stopped = worker;
+            worker = null;
+            // not interrupted, that would close a channel it is forcing - it notices on its next wake up
+            syncer = null;
+            try {
+                journal.force(false);
+                journal.close();
+            } catch (IOException e) {
+                NetworkJS.LOGGER.error("Failed to close outbox journal: " + e.getMessage());
+            }
+            journal = null;
+            pending.clear();
+            acked = 0;
+            compactRequested = false;
+            lock.notifyAll();
+        }
+        stopped.interrupt();
+    }
+
+    private static void replay() throws IOException {
+        pending.clear();
+        acked = 0;
+        if (!Files.exists(journalPath)) return;
+
+        try (BufferedReader reader = Files.newBufferedReader(journalPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                try {
+                    JsonObject record = JsonParser.parseString(line).getAsJsonObject();
+                    if (record.has("ack")) {
+                        pending.remove(record.get("ack").getAsLong());
+                    } else {
+                        Entry entry = gson.fromJson(record, Entry.class);
+                        pending.put(entry.seq, entry);
+                        nextSeq = Math.max(nextSeq, entry.seq + 1);
+                    }
+                } catch (Exception e) {
+                    // a torn write from a crash, everything before it is still valid
+                    NetworkJS.LOGGER.warn("Skipping corrupt outbox journal line");
+                }
+            }
+        }
+    }
+
+    /**
+     * Rewrites the journal with only the undelivered entries. Runs on the worker thread, the lock is only held
+     * to snapshot the entries and to swap the files, so sends aren't blocked while the new file is written and forced.
+     */
+    private static void compact() throws IOException {
+        List<String> snapshot = new ArrayList<>();
+        synchronized (lock) {
+            if (journal == null) return;
+            for (Entry entry : pending.values()) {
+                snapshot.add(gson.toJson(entry));
+            }
+            compactionTail = new ArrayList<>();
+            compactRequested = false;
+            acked = 0;
+        }
+
+        Path tmp = journalPath.resolveSibling("outbox.journal.tmp");
+        FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            for (String record : snapshot) {
+                write(out, record);
+            }
+            out.force(true);
+
+            synchronized (lock) {
+                if (journal == null) return; // closed meanwhile, the old journal is still complete
+                // the tail is small and not forced here, fsync picks it up through the new channel
+                for (String record : compactionTail) {
+                    write(out, record);
+                }
+                out.close();
+                journal.close();
+                Files.move(tmp, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                dirty = !compactionTail.isEmpty();
+            }
+        } finally {
+            out.close();
+            synchronized (lock) {
+                compactionTail = null;
+            }
+        }
+    }
+
+    private static void compactIfNeeded() {
+        synchronized (lock) {
+            if (!compactRequested && acked < COMPACT_THRESHOLD) return;
+        }
+        try {
+            compact();
+        } catch (IOException e) {
+            NetworkJS.LOGGER.error("Failed to compact outbox journal: " + e.getMessage());
+        }
+    }
+
+    private static void append(String record) throws IOException {
+        write(journal, record);
+        if (compactionTail != null) {
+            compactionTail.add(record);
+        }
+        dirty = true;
+    }
+
+    private static void write(FileChannel channel, String record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((record + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void syncLoop() {
+        long interval = NetworkJSConfig.OUTBOX_FSYNC_INTERVAL.get();
+        while (Thread.currentThread() == syncer) {
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                return;
+            }
+            fsync();
+        }
+    }
+
+    private static void fsync() {
+        if (!dirty) return;
+        FileChannel channel;
+        synchronized (lock) {
+            channel = journal;
+            dirty = false;
+        }
+        if (channel == null) return;
+        // force outside the lock, a slow disk must not stall sends from the server thread
+        try {
+            channel.force(false);
+        } catch (ClosedChannelException e) {
+            // swapped by compaction (which forced the new file) or closed on shutdown
+        } catch (IOException e) {
+            NetworkJS.LOGGER.error("Failed to fsync outbox journal: " + e.getMessage());
+        }
+    }
+
+    private static void ack(Entry entry) {
+        synchronized (lock) {
+            if (journal == null || pending.remove(entry.seq) == null) return;
+            try {
+                append("{\"ack\":" + entry.seq + "}");
+                acked++;
+            } catch (IOException e) {
+                NetworkJS.LOGGER.error("Failed to write outbox journal: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void deliveryLoop() {
+        long retryDelay = MIN_RETRY_DELAY;
+        while (Thread.currentThread() == worker) {
+            compactIfNeeded();
+            List<Entry> batch;
+            synchronized (lock) {
+                if (pending.isEmpty()) {
+                    try {
+                        lock.wait(MAX_RETRY_DELAY);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    continue;
+                }
+                batch = new ArrayList<>(pending.values());
+            }
+
+            // Order is kept per destination: once one entry fails, later entries for the same target wait too
+            Set<String> blocked = new HashSet<>();
+            for (Entry entry : batch) {
+                if (Thread.currentThread() != worker) return;
+                if (blocked.contains(entry.target())) continue;
+
+                Result result = deliver(entry);
+                if (result == Result.RETRY) {
+                    blocked.add(entry.target());
+                } else {
+                    ack(entry);
+                }
+            }
+
+            if (blocked.isEmpty()) {
+                retryDelay = MIN_RETRY_DELAY;
+                continue;
+            }
+            synchronized (lock) {
+                try {
+                    // new entries or a Discord reconnect wake us up early
+                    lock.wait(retryDelay);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            retryDelay = Math.min(MAX_RETRY_DELAY, retryDelay * 2);
+        }
+    }
+
+    private static Result deliver(Entry entry) {
+        try {
+            if ("discord".equals(entry.type)) {
+                return DiscordBinding.deliverFromOutbox(entry.botId, entry.channelId, entry.content, entry.embed)
+                    ? Result.DELIVERED : Result.RETRY;
+            }
+
+            // Straight on the shared client, not through fetch(): outbox traffic isn't owned by any script,
+            // a reload mustn't cancel a request that may already have reached the endpoint
+            try (Response response = FetchBinding.getClient().newCall(buildRequest(entry)).execute()) {
+                int status = response.code();
+                if (response.isSuccessful()) return Result.DELIVERED;
+                if (status == 429 || status >= 500) return Result.RETRY;
+                NetworkJS.LOGGER.error("Outbox dropping request to {}: HTTP {}", entry.url, status);
+                return Result.DROP;
+            }
+        } catch (OutboxRejectedException e) {
+            NetworkJS.LOGGER.error("Outbox dropping message for {}: {}", entry.target(), e.getMessage());
+            return Result.DROP;
+        } catch (Exception e) {
+            NetworkJS.LOGGER.debug("Outbox delivery to {} failed, will retry: {}", entry.target(), e.getMessage());
+            return Result.RETRY;
+        }
+    }
+
+    private static Request buildRequest(Entry entry) {
+        Request.Builder requestBuilder = new Request.Builder().url(entry.url);
+        String contentType = "application/json";
+        if (entry.headers != null) {
+            for (Map.Entry<String, String> header : entry.headers.entrySet()) {
+                requestBuilder.addHeader(header.getKey(), header.getValue());
+            }
+            contentType = entry.headers.getOrDefault("Content-Type", contentType);
+        }
+
+        String method = entry.method != null ? entry.method.toUpperCase() : "POST";
+        if (method.equals("GET") || method.equals("HEAD")) {
+            return requestBuilder.method(method, null).build();
+        }
+        RequestBody body = RequestBody.create(entry.body != null ? entry.body : "", MediaType.parse(contentType));
+        return requestBuilder.method(method, body).build();
+    }
+
+    /**
+     * Thrown when the destination permanently rejected an entry, it will not be retried
+     */
+    static class OutboxRejectedException extends RuntimeException {
+        OutboxRejectedException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private static class Entry {
+        long seq;
+        String type;
+        String url;
+        String method;
+        Map<String, String> headers;
+        String body;
+        String botId;
+        String channelId;
+        String content;
+        Map<String, Object> embed;
+
+        String target() {
+            return "discord".equals(type) ? "discord:" + botId + ":" + channelId : url;
+        }
+    }
+}
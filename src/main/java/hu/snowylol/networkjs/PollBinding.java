@@ -0,0 +1,332 @@
+package hu.snowylol.networkjs;
+
+import dev.latvian.mods.rhino.Context;
+import hu.snowylol.networkjs.FetchBinding.FetchResponse;
+import okhttp3.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Polls URLs on the shared NetworkJS scheduler and only calls scripts when the content changes.
+ * Identical subscriptions (same url and headers) share a single poller.
+ */
+public class PollBinding {
+    private static final long MIN_INTERVAL = 1000;
+    private static final long DEFAULT_INTERVAL = 60000;
+    // Unchanged or failing endpoints back off up to this many times the requested interval
+    private static final int MAX_BACKOFF_FACTOR = 8;
+
+    private static final Map<String, PollTask> tasks = new ConcurrentHashMap<>();
+
+    public static Subscription poll(Context cx, String url, Consumer<FetchResponse> callback) {
+        return poll(cx, url, new PollOptions(), callback);
+    }
+
+    public static Subscription poll(Context cx, String url, PollOptions options, Consumer<FetchResponse> callback) {
+        if (callback == null) {
+            throw new IllegalArgumentException("Poll callback is required");
+        }
+        PollOptions opts = options != null ? options : new PollOptions();
+        String key = opts.key(url);
+        Subscription subscription = new Subscription(key, url, opts, callback);
+
+        tasks.compute(key, (k, existing) -> {
+            PollTask task = existing != null ? existing : new PollTask(url, opts.headers);
+            task.add(subscription);
+            if (existing == null) {
+                task.start();
+            }
+            return task;
+        });
+
+        NetworkJSLifecycle.register(NetworkJSLifecycle.ownerOf(cx), subscription.lifecycleHandle);
+        return subscription;
+    }
+
+    public static int getActivePollers() {
+        return tasks.size();
+    }
+
+    private static void unsubscribe(Subscription subscription) {
+        tasks.computeIfPresent(subscription.key, (k, task) -> {
+            task.remove(subscription);
+            if (task.isEmpty()) {
+                task.stop();
+                return null;
+            }
+            return task;
+        });
+    }
+
+    private static String hash(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required on every JVM
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static class PollOptions {
+        public long interval = DEFAULT_INTERVAL;
+        public long jitter;
+        public long maxInterval;
+        public Map<String, String> headers;
+
+        public PollOptions() {}
+
+        public PollOptions(long interval, long jitter, long maxInterval, Map<String, String> headers) {
+            this.interval = interval > 0 ? interval : DEFAULT_INTERVAL;
+            this.jitter = jitter;
+            this.maxInterval = maxInterval;
+            this.headers = headers;
+        }
+
+        long effectiveInterval() {
+            return Math.max(MIN_INTERVAL, interval);
+        }
+
+        long effectiveMaxInterval() {
+            long base = effectiveInterval();
+            return maxInterval > 0 ? Math.max(base, maxInterval) : base * MAX_BACKOFF_FACTOR;
+        }
+
+        String key(String url) {
+            return headers == null || headers.isEmpty() ? url : url + " " + new TreeMap<>(headers);
+        }
+    }
+
+    public static class Subscription {
+        private final String key;
+        private final String url;
+        private final PollOptions options;
+        private final Consumer<FetchResponse> callback;
+        private final Runnable lifecycleHandle = this::cancel;
+        private volatile boolean active = true;
+
+        private Subscription(String key, String url, PollOptions options, Consumer<FetchResponse> callback) {
+            this.key = key;
+            this.url = url;
+            this.options = options;
+            this.callback = callback;
+        }
+
+        public String getUrl() { return url; }
+        public boolean isActive() { return active; }
+
+        public void cancel() {
+            if (!active) return;
+            active = false;
+            NetworkJSLifecycle.unregister(lifecycleHandle);
+            unsubscribe(this);
+        }
+
+        private void deliver(FetchResponse response) {
+            NetworkJS.runOnServerThread(() -> {
+                // might have been cancelled (e.g. by a reload) while waiting for the server thread
+                if (!active) return;
+                try {
+                    callback.accept(response);
+                } catch (Exception e) {
+                    NetworkJS.LOGGER.error("Error in poll callback for " + url + ": " + e.getMessage());
+                }
+            });
+        }
+    }
+
+    private static class PollTask implements Callback {
+        private final String url;
+        private final Map<String, String> headers;
+        private final List<Subscription> subscribers = new CopyOnWriteArrayList<>();
+
+        private volatile boolean stopped;
+        private volatile ScheduledFuture<?> nextRun;
+        private volatile Call inFlight;
+
+        private String etag;
+        private String lastModified;
+        private String lastHash;
+        private volatile FetchResponse lastResponse;
+        private long currentDelay;
+        private int failures;
+
+        PollTask(String url, Map<String, String> headers) {
+            this.url = url;
+            this.headers = headers;
+        }
+
+        void add(Subscription subscription) {
+            subscribers.add(subscription);
+            // late subscribers get the current content right away instead of waiting for a change
+            FetchResponse current = lastResponse;
+            if (current != null) {
+                subscription.deliver(current);
+            }
+        }
+
+        void remove(Subscription subscription) {
+            subscribers.remove(subscription);
+        }
+
+        boolean isEmpty() {
+            return subscribers.isEmpty();
+        }
+
+        void start() {
+            currentDelay = baseInterval();
+            nextRun = NetworkJS.getScheduler().schedule(this::run, 0, TimeUnit.MILLISECONDS);
+        }
+
+        void stop() {
+            stopped = true;
+            ScheduledFuture<?> scheduled = nextRun;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            Call call = inFlight;
+            if (call != null) {
+                call.cancel();
+            }
+        }
+
+        private long baseInterval() {
+            long interval = Long.MAX_VALUE;
+            for (Subscription subscription : subscribers) {
+                interval = Math.min(interval, subscription.options.effectiveInterval());
+            }
+            return interval == Long.MAX_VALUE ? DEFAULT_INTERVAL : interval;
+        }
+
+        private long maxInterval() {
+            long interval = Long.MAX_VALUE;
+            for (Subscription subscription : subscribers) {
+                interval = Math.min(interval, subscription.options.effectiveMaxInterval());
+            }
+            return interval == Long.MAX_VALUE ? DEFAULT_INTERVAL * MAX_BACKOFF_FACTOR : interval;
+        }
+
+        private long jitter() {
+            long jitter = 0;
+            for (Subscription subscription : subscribers) {
+                jitter = Math.max(jitter, subscription.options.jitter);
+            }
+            return jitter > 0 ? ThreadLocalRandom.current().nextLong(-jitter, jitter + 1) : 0;
+        }
+
+        private void run() {
+            if (stopped) return;
+            if (!NetworkJS.isRegistryEnabled()) {
+                // registry got disabled, keep the subscription but don't hit the network
+                scheduleNext(currentDelay);
+                return;
+            }
+
+            Request.Builder requestBuilder = new Request.Builder().url(url).get();
+            if (headers != null) {
+                for (Map.Entry<String, String> header : headers.entrySet()) {
+                    requestBuilder.addHeader(header.getKey(), header.getValue());
+                }
+            }
+            synchronized (this) {
+                if (etag != null) requestBuilder.header("If-None-Match", etag);
+                if (lastModified != null) requestBuilder.header("If-Modified-Since", lastModified);
+            }
+
+            try {
+                Call call = FetchBinding.getClient().newCall(requestBuilder.build());
+                inFlight = call;
+                call.enqueue(this);
+            } catch (Exception e) {
+                NetworkJS.LOGGER.error("Failed to poll " + url + ": " + e.getMessage());
+                failed();
+            }
+        }
+
+        @Override
+        public void onResponse(Call call, Response response) {
+            inFlight = null;
+            if (stopped) {
+                response.close();
+                return;
+            }
+
+            try (response) {
+                if (response.code() == 304) {
+                    unchanged();
+                    return;
+                }
+                if (!response.isSuccessful()) {
+                    NetworkJS.LOGGER.debug("Poll of {} returned HTTP {}", url, response.code());
+                    failed();
+                    return;
+                }
+
+                FetchResponse fetchResponse = new FetchResponse(response);
+                String hash = hash(fetchResponse.text());
+                boolean changed;
+                synchronized (this) {
+                    etag = response.header("ETag");
+                    lastModified = response.header("Last-Modified");
+                    changed = !hash.equals(lastHash);
+                    lastHash = hash;
+                }
+
+                if (changed) {
+                    lastResponse = fetchResponse;
+                    failures = 0;
+                    currentDelay = baseInterval();
+                    for (Subscription subscription : subscribers) {
+                        subscription.deliver(fetchResponse);
+                    }
+                    scheduleNext(currentDelay);
+                } else {
+                    unchanged();
+                }
+            } catch (IOException e) {
+                onFailure(call, e);
+            }
+        }
+
+        @Override
+        public void onFailure(Call call, IOException e) {
+            inFlight = null;
+            if (stopped) return;
+            if (failures == 0) {
+                NetworkJS.LOGGER.warn("Poll of " + url + " failed, backing off: " + e.getMessage());
+            }
+            failed();
+        }
+
+        private void unchanged() {
+            failures = 0;
+            currentDelay = Math.min(maxInterval(), currentDelay + currentDelay / 2);
+            scheduleNext(currentDelay);
+        }
+
+        private void failed() {
+            failures++;
+            currentDelay = Math.min(maxInterval(), currentDelay * 2);
+            scheduleNext(currentDelay);
+        }
+
+        private void scheduleNext(long delay) {
+            if (stopped) return;
+            long withJitter = Math.max(MIN_INTERVAL, delay + jitter());
+            nextRun = NetworkJS.getScheduler().schedule(this::run, withJitter, TimeUnit.MILLISECONDS);
+        }
+    }
+}
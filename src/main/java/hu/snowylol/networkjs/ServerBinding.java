@@ -115,7 +115,7 @@ public class ServerBinding {
      * Converts color codes from & to § for Minecraft formatting
      * Also handles some basic formatting codes
      */
-    private static String translateColorCodes(String message) {
+    static String translateColorCodes(String message) {
         if (message == null) return "";
         
         return message
@@ -0,0 +1,195 @@
+package hu.snowylol.networkjs;
+
+import dev.latvian.mods.kubejs.script.ScriptType;
+import dev.latvian.mods.rhino.Context;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Base for persistent connections (WebSocket, SSE).
+ * Inbound events are buffered in a bounded queue and handed to scripts on the server thread
+ * in per-tick batches, lost connections are reopened with exponential backoff.
+ */
+public abstract class StreamConnection {
+    private static final long MIN_RECONNECT_DELAY = 1000;
+    private static final long MAX_RECONNECT_DELAY = 60000;
+    private static final int DEFAULT_MAX_QUEUE = 1024;
+    private static final int DEFAULT_BATCH_SIZE = 64;
+
+    // Holder so the per-tick drain doesn't build an OkHttp client on servers without connections
+    private static class ClientHolder {
+        // Streams stay open indefinitely, so no read timeout - WebSockets are kept alive with pings instead
+        private static final OkHttpClient streamClient = FetchBinding.getClient().newBuilder()
+                .readTimeout(0, TimeUnit.MILLISECONDS)
+                .pingInterval(30, TimeUnit.SECONDS)
+                .build();
+    }
+
+    private static final Set<StreamConnection> connections = ConcurrentHashMap.newKeySet();
+
+    protected final String url;
+    private final ScriptType owner;
+    protected final Map<String, String> headers;
+    private final boolean reconnect;
+    private final int batchSize;
+    private final ArrayBlockingQueue<Runnable> inbound;
+    private final AtomicLong droppedMessages = new AtomicLong();
+    private final Runnable lifecycleHandle = this::close;
+
+    protected volatile boolean closed;
+    private volatile boolean overflowing;
+    private volatile ScheduledFuture<?> reconnectTask;
+    private int reconnectAttempts;
+
+    @SuppressWarnings("unchecked")
+    protected StreamConnection(Context cx, String url, Map<String, Object> options) {
+        if (!NetworkJS.isRegistryEnabled()) {
+            throw new RuntimeException("NetworkJS registry is disabled! Use /networkjs enable to enable network connections.");
+        }
+        if (url == null) {
+            throw new IllegalArgumentException("Connection url is required");
+        }
+        Map<String, Object> opts = options != null ? options : Map.of();
+        this.url = url;
+        this.owner = NetworkJSLifecycle.ownerOf(cx);
+        this.headers = (Map<String, String>) opts.getOrDefault("headers", Map.of());
+        this.reconnect = (Boolean) opts.getOrDefault("reconnect", true);
+        this.batchSize = Math.max(1, intOption(opts, "batchSize", DEFAULT_BATCH_SIZE));
+        this.inbound = new ArrayBlockingQueue<>(Math.max(1, intOption(opts, "maxQueue", DEFAULT_MAX_QUEUE)));
+    }
+
+    static OkHttpClient getStreamClient() {
+        return ClientHolder.streamClient;
+    }
+
+    protected static int intOption(Map<String, Object> options, String key, int fallback) {
+        return options.get(key) instanceof Number n ? n.intValue() : fallback;
+    }
+
+    /**
+     * Opens the connection for the first time, call at the end of the subclass constructor
+     */
+    protected void start() {
+        connections.add(this);
+        NetworkJSLifecycle.register(owner, lifecycleHandle);
+        connect();
+    }
+
+    protected abstract void connect();
+
+    protected abstract void disconnect();
+
+    /** Runs on the server thread once per tick before the inbound batch is delivered */
+    protected void onTick() {}
+
+    protected Request.Builder newRequest() {
+        Request.Builder requestBuilder = new Request.Builder().url(url);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            requestBuilder.addHeader(header.getKey(), header.getValue());
+        }
+        return requestBuilder;
+    }
+
+    /**
+     * Queues a delivery for the server thread. When the queue is full the oldest entry is dropped,
+     * live data is worth more than a stale backlog.
+     */
+    protected void enqueue(Runnable delivery) {
+        if (closed) return;
+        while (!inbound.offer(delivery)) {
+            if (inbound.poll() != null) {
+                droppedMessages.incrementAndGet();
+                if (!overflowing) {
+                    overflowing = true;
+                    NetworkJS.LOGGER.warn("Inbound queue for " + url + " is full, dropping oldest messages");
+                }
+            }
+        }
+    }
+
+    protected void onConnected() {
+        synchronized (this) {
+            reconnectAttempts = 0;
+        }
+    }
+
+    protected void onDisconnected() {
+        if (closed) return;
+        if (!reconnect) {
+            close();
+            return;
+        }
+
+        long delay;
+        synchronized (this) {
+            delay = Math.min(MAX_RECONNECT_DELAY, MIN_RECONNECT_DELAY << Math.min(reconnectAttempts, 16));
+            reconnectAttempts++;
+        }
+        delay += ThreadLocalRandom.current().nextLong(delay / 4 + 1);
+        NetworkJS.LOGGER.info("Connection to {} lost, reconnecting in {}ms", url, delay);
+        reconnectTask = NetworkJS.getScheduler().schedule(() -> {
+            if (!closed) connect();
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    public void close() {
+        if (closed) return;
+        closed = true;
+        connections.remove(this);
+        NetworkJSLifecycle.unregister(lifecycleHandle);
+        ScheduledFuture<?> scheduled = reconnectTask;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        inbound.clear();
+        disconnect();
+    }
+
+    public boolean isClosed() { return closed; }
+    public String getUrl() { return url; }
+    public int getQueuedMessages() { return inbound.size(); }
+    public long getDroppedMessages() { return droppedMessages.get(); }
+
+    private void drain() {
+        onTick();
+        for (int i = 0; i < batchSize && !closed; i++) {
+            Runnable delivery = inbound.poll();
+            if (delivery == null) {
+                overflowing = false;
+                break;
+            }
+            try {
+                delivery.run();
+            } catch (Exception e) {
+                NetworkJS.LOGGER.error("Error in connection callback for " + url + ": " + e.getMessage());
+            }
+        }
+    }
+
+    protected static <T> void dispatch(List<Consumer<T>> callbacks, T value) {
+        for (Consumer<T> callback : callbacks) {
+            callback.accept(value);
+        }
+    }
+
+    /**
+     * Called every server tick to hand queued events to scripts
+     */
+    static void tickAll() {
+        if (connections.isEmpty()) return;
+        for (StreamConnection connection : connections) {
+            connection.drain();
+        }
+    }
+}
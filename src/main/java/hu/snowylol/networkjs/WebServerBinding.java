@@ -0,0 +1,394 @@
+package hu.snowylol.networkjs;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.latvian.mods.rhino.Context;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Embedded HTTP server for inbound webhooks.
+ * Requests are read on a small executor and handed to script handlers on the server thread in per-tick batches.
+ */
+public class WebServerBinding {
+    private static final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+    private static volatile HttpServer server;
+    private static ExecutorService executor;
+    private static volatile ArrayBlockingQueue<WebRequest> pending = new ArrayBlockingQueue<>(1);
+
+    static synchronized void start() {
+        if (server != null || !NetworkJSConfig.HTTP_ENABLED.get()) return;
+
+        String address = NetworkJSConfig.HTTP_BIND_ADDRESS.get();
+        int port = NetworkJSConfig.HTTP_PORT.get();
+        try {
+            HttpServer httpServer = HttpServer.create(new InetSocketAddress(address, port), 0);
+            executor = Executors.newFixedThreadPool(NetworkJSConfig.HTTP_THREADS.get(), runnable -> {
+                Thread thread = new Thread(runnable, "NetworkJS HTTP");
+                thread.setDaemon(true);
+                return thread;
+            });
+            pending = new ArrayBlockingQueue<>(NetworkJSConfig.HTTP_MAX_PENDING.get());
+            httpServer.createContext("/", WebServerBinding::handle);
+            httpServer.setExecutor(executor);
+            httpServer.start();
+            server = httpServer;
+
+            NetworkJS.LOGGER.info("NetworkJS HTTP server listening on {}:{} with {} route(s)", address, port, routes.size());
+            if (NetworkJSConfig.HTTP_SECRET.get().isEmpty()) {
+                NetworkJS.LOGGER.warn("NetworkJS HTTP server has no shared secret configured - routes without their own secret answer 401");
+            }
+        } catch (IOException e) {
+            NetworkJS.LOGGER.error("Failed to start NetworkJS HTTP server on " + address + ":" + port + ": " + e.getMessage());
+        }
+    }
+
+    static synchronized void stop() {
+        HttpServer httpServer = server;
+        if (httpServer == null) return;
+        server = null;
+        httpServer.stop(0);
+        executor.shutdownNow();
+        rejectPending("Server stopping");
+        NetworkJS.LOGGER.info("NetworkJS HTTP server stopped");
+    }
+
+    /**
+     * Called every server tick to run queued requests through their script handlers
+     */
+    static void tick() {
+        ArrayBlockingQueue<WebRequest> queue = pending;
+        int batchSize = NetworkJSConfig.HTTP_BATCH_SIZE.get();
+        for (int i = 0; i < batchSize; i++) {
+            WebRequest request = queue.poll();
+            if (request == null) break;
+            request.runHandler();
+        }
+    }
+
+    public static boolean isRunning() {
+        return server != null;
+    }
+
+    public static int getPort() {
+        HttpServer httpServer = server;
+        return httpServer != null ? httpServer.getAddress().getPort() : -1;
+    }
+
+    public static int getPendingRequests() {
+        return pending.size();
+    }
+
+    public static void route(Context cx, String method, String path, Consumer<WebRequest> handler) {
+        route(cx, method, path, Map.of(), handler);
+    }
+
+    /**
+     * Registers a handler for an exact path. Method "*" matches any method.
+     * Options: maxBodySize (bytes), secret (overrides the configured one, "" explicitly makes the route public)
+     * Routes can be registered before the HTTP server starts, it is enabled in config/networkjs-common.toml
+     */
+    public static void route(Context cx, String method, String path, Map<String, Object> options, Consumer<WebRequest> handler) {
+        if (!NetworkJS.isRegistryEnabled()) {
+            throw new RuntimeException("NetworkJS registry is disabled! Use /networkjs enable to enable the HTTP server.");
+        }
+        if (handler == null) {
+            throw new IllegalArgumentException("Route handler is required");
+        }
+
+        Map<String, Object> opts = options != null ? options : Map.of();
+        long maxBodySize = opts.get("maxBodySize") instanceof Number n ? n.longValue() : NetworkJSConfig.HTTP_MAX_BODY_SIZE.get();
+        String secret = opts.get("secret") instanceof String s ? s : null;
+
+        Route route = new Route(routeKey(method, path), maxBodySize, secret, handler);
+        Route previous = routes.put(route.key, route);
+        if (previous != null) {
+            previous.deactivate();
+        }
+        NetworkJSLifecycle.register(NetworkJSLifecycle.ownerOf(cx), route.lifecycleHandle);
+    }
+
+    public static void removeRoute(String method, String path) {
+        Route route = routes.remove(routeKey(method, path));
+        if (route != null) {
+            route.deactivate();
+        }
+    }
+
+    private static String routeKey(String method, String path) {
+        return (method != null ? method.toUpperCase() : "*") + " " + path;
+    }
+
+    private static void rejectPending(String reason) {
+        WebRequest request;
+        while ((request = pending.poll()) != null) {
+            request.respond(503, reason);
+        }
+    }
+
+    private static void handle(HttpExchange exchange) {
+        boolean answered = true;
+        try {
+            String method = exchange.getRequestMethod().toUpperCase();
+            String path = exchange.getRequestURI().getPath();
+
+            Route route = routes.get(method + " " + path);
+            if (route == null) {
+                route = routes.get("* " + path);
+            }
+            if (route == null) {
+                // Only callers holding the configured secret learn that a path doesn't exist,
+                // everyone else gets the same 401 as for a real route
+                boolean authorized = hasSecret(exchange.getRequestHeaders(), NetworkJSConfig.HTTP_SECRET.get());
+                send(exchange, authorized ? 404 : 401, authorized ? "Not Found" : "Unauthorized", "text/plain");
+                return;
+            }
+            if (!NetworkJS.isRegistryEnabled()) {
+                send(exchange, 503, "NetworkJS registry is disabled", "text/plain");
+                return;
+            }
+            if (!route.isAuthorized(exchange.getRequestHeaders())) {
+                send(exchange, 401, "Unauthorized", "text/plain");
+                return;
+            }
+
+            byte[] body = readBody(exchange, route.maxBodySize);
+            if (body == null) {
+                send(exchange, 413, "Payload Too Large", "text/plain");
+                return;
+            }
+
+            WebRequest request = new WebRequest(route, method, path, exchange.getRequestURI().getRawQuery(),
+                    exchange.getRequestHeaders(), new String(body, StandardCharsets.UTF_8));
+            ArrayBlockingQueue<WebRequest> queue = pending;
+            if (!queue.offer(request)) {
+                send(exchange, 503, "Server busy", "text/plain");
+                return;
+            }
+
+            // Don't hold an HTTP thread while the request waits for the server thread, the answer
+            // (handler response or the 504 deadline, whichever is first) is written once it exists
+            ExecutorService httpExecutor = executor;
+            answered = false;
+            request.result
+                    .completeOnTimeout(new WebResponse(504, "Handler timed out", "text/plain"),
+                            NetworkJSConfig.HTTP_HANDLER_TIMEOUT.get(), TimeUnit.MILLISECONDS)
+                    .whenComplete((response, error) -> {
+                        // no-op once tick() took it, a timed out request mustn't hold a batch slot
+                        queue.remove(request);
+                        try {
+                            httpExecutor.execute(() -> reply(exchange, response));
+                        } catch (RejectedExecutionException e) {
+                            exchange.close(); // HTTP server already stopped
+                        }
+                    });
+        } catch (Exception e) {
+            NetworkJS.LOGGER.error("Failed to handle HTTP request: " + e.getMessage());
+        } finally {
+            if (answered) {
+                exchange.close();
+            }
+        }
+    }
+
+    private static void reply(HttpExchange exchange, WebResponse response) {
+        try {
+            send(exchange, response.status(), response.body(), response.contentType());
+        } catch (Exception e) {
+            NetworkJS.LOGGER.error("Failed to send HTTP response: " + e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Checks the X-NetworkJS-Secret or Bearer header against the expected secret, an empty one matches nothing
+     */
+    private static boolean hasSecret(Headers headers, String expected) {
+        if (expected.isEmpty()) return false;
+
+        String provided = headers.getFirst("X-NetworkJS-Secret");
+        if (provided == null) {
+            String authorization = headers.getFirst("Authorization");
+            if (authorization != null && authorization.startsWith("Bearer ")) {
+                provided = authorization.substring(7);
+            }
+        }
+        return provided != null && MessageDigest.isEqual(
+                expected.getBytes(StandardCharsets.UTF_8), provided.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads at most maxBodySize bytes, returns null if the body is bigger
+     */
+    private static byte[] readBody(HttpExchange exchange, long maxBodySize) throws IOException {
+        String contentLength = exchange.getRequestHeaders().getFirst("Content-Length");
+        if (contentLength != null) {
+            try {
+                if (Long.parseLong(contentLength.trim()) > maxBodySize) return null;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try (InputStream in = exchange.getRequestBody()) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (out.size() + read > maxBodySize) return null;
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static void send(HttpExchange exchange, int status, String body, String contentType) throws IOException {
+        byte[] bytes = body != null ? body.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static class Route {
+        private final String key;
+        private final long maxBodySize;
+        private final String secret;
+        private final Consumer<WebRequest> handler;
+        private final Runnable lifecycleHandle = this::remove;
+        private volatile boolean active = true;
+
+        Route(String key, long maxBodySize, String secret, Consumer<WebRequest> handler) {
+            this.key = key;
+            this.maxBodySize = maxBodySize;
+            this.secret = secret;
+            this.handler = handler;
+        }
+
+        boolean isAuthorized(Headers headers) {
+            // Only an explicit secret: "" on the route opens it up, an unset config secret locks everything else
+            if (secret != null && secret.isEmpty()) return true;
+            return hasSecret(headers, secret != null ? secret : NetworkJSConfig.HTTP_SECRET.get());
+        }
+
+        void remove() {
+            routes.remove(key, this);
+            deactivate();
+        }
+
+        void deactivate() {
+            active = false;
+            NetworkJSLifecycle.unregister(lifecycleHandle);
+        }
+    }
+
+    public static class WebRequest {
+        private final Route route;
+        private final String method;
+        private final String path;
+        private final String query;
+        private final Map<String, String> headers = new HashMap<>();
+        private final String body;
+        private final CompletableFuture<WebResponse> result = new CompletableFuture<>();
+
+        private WebRequest(Route route, String method, String path, String query, Headers requestHeaders, String body) {
+            this.route = route;
+            this.method = method;
+            this.path = path;
+            this.query = query;
+            this.body = body;
+            for (Map.Entry<String, List<String>> header : requestHeaders.entrySet()) {
+                if (!header.getValue().isEmpty()) {
+                    this.headers.put(header.getKey().toLowerCase(), header.getValue().get(0));
+                }
+            }
+        }
+
+        private void runHandler() {
+            // Already answered with 504, the sender may retry so the handler must not run as well
+            if (result.isDone()) return;
+            if (!route.active) {
+                respond(503, "Route is reloading");
+                return;
+            }
+            try {
+                route.handler.accept(this);
+                // handlers that don't answer explicitly get the default 200 OK
+                respond(200, "OK");
+            } catch (Exception e) {
+                NetworkJS.LOGGER.error("Error in HTTP route handler for " + method + " " + path + ": " + e.getMessage());
+                respond(500, "Internal Server Error");
+            }
+        }
+
+        public String getMethod() { return method; }
+        public String getPath() { return path; }
+        public String getQuery() { return query; }
+        public Map<String, String> getHeaders() { return headers; }
+        public String getHeader(String name) { return headers.get(name.toLowerCase()); }
+        public String getBody() { return body; }
+
+        public Map<String, String> getQueryParams() {
+            Map<String, String> params = new HashMap<>();
+            if (query == null || query.isEmpty()) return params;
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                String key = eq >= 0 ? pair.substring(0, eq) : pair;
+                String value = eq >= 0 ? pair.substring(eq + 1) : "";
+                params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+            return params;
+        }
+
+        public JsonElement json() {
+            try {
+                return JsonParser.parseString(body);
+            } catch (Exception e) {
+                throw new RuntimeException("Request body is not valid JSON: " + e.getMessage(), e);
+            }
+        }
+
+        public void respond(String responseBody) {
+            respond(200, responseBody);
+        }
+
+        public void respond(int status, String responseBody) {
+            respond(status, responseBody, "text/plain");
+        }
+
+        /**
+         * Only the first response counts, later calls are ignored
+         */
+        public void respond(int status, String responseBody, String contentType) {
+            result.complete(new WebResponse(status, responseBody, contentType));
+        }
+    }
+
+    private record WebResponse(int status, String body, String contentType) {}
+}
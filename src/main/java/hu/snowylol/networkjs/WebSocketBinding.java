@@ -0,0 +1,172 @@
+package hu.snowylol.networkjs;
+
+import dev.latvian.mods.rhino.Context;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+public class WebSocketBinding extends StreamConnection {
+    // Keep OkHttp's own send queue small, it closes the socket once it passes 16 MiB
+    private static final long MAX_SOCKET_QUEUE = 1024 * 1024;
+    private static final int DEFAULT_MAX_BUFFER = 256;
+
+    private final List<Consumer<WebSocketBinding>> openCallbacks = new CopyOnWriteArrayList<>();
+    private final List<Consumer<String>> messageCallbacks = new CopyOnWriteArrayList<>();
+    private final List<Consumer<String>> closeCallbacks = new CopyOnWriteArrayList<>();
+    private final List<Consumer<String>> errorCallbacks = new CopyOnWriteArrayList<>();
+
+    private final ArrayDeque<String> outbound = new ArrayDeque<>();
+    private final int maxBuffer;
+    private volatile WebSocket socket;
+    private volatile Listener currentListener;
+    private volatile boolean connected;
+
+    public WebSocketBinding(Context cx, String url) {
+        this(cx, url, Map.of());
+    }
+
+    public WebSocketBinding(Context cx, String url, Map<String, Object> options) {
+        super(cx, url, options);
+        this.maxBuffer = Math.max(1, intOption(options != null ? options : Map.of(), "maxBuffer", DEFAULT_MAX_BUFFER));
+        start();
+    }
+
+    @Override
+    protected void connect() {
+        Listener listener = new Listener();
+        currentListener = listener;
+        socket = getStreamClient().newWebSocket(newRequest().build(), listener);
+    }
+
+    @Override
+    protected void disconnect() {
+        connected = false;
+        WebSocket current = socket;
+        if (current != null) {
+            current.close(1000, "Closing");
+        }
+        synchronized (outbound) {
+            outbound.clear();
+        }
+    }
+
+    @Override
+    protected void onTick() {
+        flushOutbound();
+    }
+
+    /**
+     * Sends a text message, buffering it while disconnected or while the socket is backed up.
+     * Returns false if the buffer is full and the message was dropped, already buffered messages are kept.
+     */
+    public boolean send(String message) {
+        if (closed || message == null) return false;
+        synchronized (outbound) {
+            if (outbound.isEmpty() && trySend(message)) {
+                return true;
+            }
+            if (outbound.size() >= maxBuffer) {
+                NetworkJS.LOGGER.warn("Outbound buffer for " + url + " is full, dropping message");
+                return false;
+            }
+            outbound.add(message);
+            return true;
+        }
+    }
+
+    private boolean trySend(String message) {
+        WebSocket current = socket;
+        if (!connected || current == null || current.queueSize() + message.length() > MAX_SOCKET_QUEUE) {
+            return false;
+        }
+        return current.send(message);
+    }
+
+    private void flushOutbound() {
+        synchronized (outbound) {
+            while (!outbound.isEmpty() && trySend(outbound.peek())) {
+                outbound.poll();
+            }
+        }
+    }
+
+    public boolean isConnected() { return connected; }
+
+    public int getBufferedMessages() {
+        synchronized (outbound) {
+            return outbound.size();
+        }
+    }
+
+    public void onOpen(Consumer<WebSocketBinding> callback) {
+        openCallbacks.add(callback);
+    }
+
+    public void onMessage(Consumer<String> callback) {
+        messageCallbacks.add(callback);
+    }
+
+    public void onClose(Consumer<String> callback) {
+        closeCallbacks.add(callback);
+    }
+
+    public void onError(Consumer<String> callback) {
+        errorCallbacks.add(callback);
+    }
+
+    private class Listener extends WebSocketListener {
+        // Events from a socket we already replaced (reconnect) or closed are ignored
+        private boolean isStale() {
+            return closed || this != currentListener;
+        }
+
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            if (isStale()) {
+                webSocket.cancel();
+                return;
+            }
+            socket = webSocket;
+            connected = true;
+            onConnected();
+            NetworkJS.LOGGER.info("WebSocket connected: {}", url);
+            flushOutbound();
+            enqueue(() -> dispatch(openCallbacks, WebSocketBinding.this));
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            if (isStale()) return;
+            enqueue(() -> dispatch(messageCallbacks, text));
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            // Not an echo of the peer's code: 1005/1006 are reserved and close() rejects them
+            webSocket.close(1000, null);
+        }
+
+        @Override
+        public void onClosed(WebSocket webSocket, int code, String reason) {
+            if (isStale()) return;
+            connected = false;
+            enqueue(() -> dispatch(closeCallbacks, code + " " + reason));
+            onDisconnected();
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+            if (isStale()) return;
+            connected = false;
+            NetworkJS.LOGGER.warn("WebSocket " + url + " failed: " + t.getMessage());
+            enqueue(() -> dispatch(errorCallbacks, String.valueOf(t.getMessage())));
+            onDisconnected();
+        }
+    }
+}